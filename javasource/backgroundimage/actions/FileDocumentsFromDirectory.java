@@ -0,0 +1,108 @@
+// This file was generated by Mendix Studio Pro.
+//
+// WARNING: Only the following code will be retained when actions are regenerated:
+// - the import list
+// - the code between BEGIN USER CODE and END USER CODE
+// - the code between BEGIN EXTRA CODE and END EXTRA CODE
+// Other code you write will be lost the next time you deploy the project.
+// Special characters, e.g., é, ö, à, etc. are supported in comments.
+
+package backgroundimage.actions;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import backgroundimage.impl.FileImporter;
+import backgroundimage.impl.FileImporter.ScannedFile;
+import com.mendix.core.Core;
+import com.mendix.logging.ILogNode;
+import com.mendix.systemwideinterfaces.core.IContext;
+import com.mendix.systemwideinterfaces.core.IMendixObject;
+import com.mendix.systemwideinterfaces.core.UserAction;
+
+/**
+ * Loads all files below a directory of the local (server) storage that match a glob pattern, and stores each one inside a new FileDocument of the given entity type.
+ * Files with the same content are only imported once. Returns the created FileDocuments.
+ */
+public class FileDocumentsFromDirectory extends UserAction<java.util.List<IMendixObject>>
+{
+	private final java.lang.String directory;
+	private final java.lang.String pattern;
+	private final java.lang.String entityType;
+
+	public FileDocumentsFromDirectory(
+		IContext context,
+		java.lang.String _directory,
+		java.lang.String _pattern,
+		java.lang.String _entityType
+	)
+	{
+		super(context);
+		this.directory = _directory;
+		this.pattern = _pattern;
+		this.entityType = _entityType;
+	}
+
+	@java.lang.Override
+	public java.util.List<IMendixObject> executeAction() throws Exception
+	{
+		// BEGIN USER CODE
+		long start = System.nanoTime();
+		List<Path> files = FileImporter.findFiles(Paths.get(this.directory), this.pattern);
+		// duplicates are skipped before anything is stored
+		List<ScannedFile> unique = FileImporter.dropDuplicates(FileImporter.scan(files), HASH_THREADS);
+
+		List<IMendixObject> result = new ArrayList<>(unique.size());
+		for (int from = 0; from < unique.size(); from += BATCH_SIZE)
+			result.addAll(storeBatch(unique.subList(from, Math.min(from + BATCH_SIZE, unique.size()))));
+
+		double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+		LOGGER.info(String.format("Imported %d files (%d bytes, %d duplicates skipped) from %s in %.2fs: %.1f files/s, %.1f MB/s",
+			result.size(), this.storedBytes, files.size() - result.size(), this.directory, seconds,
+			result.size() / seconds, this.storedBytes / seconds / (1024 * 1024)));
+		return result;
+		// END USER CODE
+	}
+
+	/**
+	 * Returns a string representation of this action
+	 * @return a string representation of this action
+	 */
+	@java.lang.Override
+	public java.lang.String toString()
+	{
+		return "FileDocumentsFromDirectory";
+	}
+
+	// BEGIN EXTRA CODE
+	private static final ILogNode LOGGER = Core.getLogger("FileDocumentsFromDirectory");
+	private static final int BATCH_SIZE = 100;
+	// hashing is bound by disk reads, so a few threads suffice
+	private static final int HASH_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+	private long storedBytes;
+
+	private List<IMendixObject> storeBatch(List<ScannedFile> batch) throws Exception {
+		IContext context = getContext();
+		List<IMendixObject> stored = new ArrayList<>(batch.size());
+		context.startTransaction();
+		try {
+			for (ScannedFile file : batch) {
+				IMendixObject fileDocument = Core.instantiate(context, this.entityType);
+				try (InputStream stream = FileImporter.open(file)) {
+					Core.storeFileDocumentContent(context, fileDocument, file.getPath().getFileName().toString(), stream);
+				}
+				stored.add(fileDocument);
+				this.storedBytes += file.getSize();
+			}
+			context.endTransaction();
+		} catch (Exception e) {
+			context.rollbackTransaction();
+			throw e;
+		}
+		return stored;
+	}
+	// END EXTRA CODE
+}
@@ -0,0 +1,196 @@
+package backgroundimage.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Finds and fingerprints server-side files for bulk import into FileDocuments.
+ *
+ * Duplicates are found before anything is stored: only files whose size is shared with another
+ * file are hashed, since no other file can have the same content, and they are hashed through
+ * FileChannel reads on a bounded pool of threads.
+ */
+public final class FileImporter
+{
+	private static final String HASH_ALGORITHM = "SHA-256";
+	private static final int READ_BUFFER_SIZE = 256 * 1024;
+	private static final ThreadLocal<ByteBuffer> READ_BUFFERS = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(READ_BUFFER_SIZE));
+
+	private FileImporter()
+	{
+	}
+
+	public static final class ScannedFile
+	{
+		private final Path path;
+		private final long size;
+		private final boolean sizeShared;
+
+		ScannedFile(Path path, long size, boolean sizeShared)
+		{
+			this.path = path;
+			this.size = size;
+			this.sizeShared = sizeShared;
+		}
+
+		public Path getPath()
+		{
+			return path;
+		}
+
+		public long getSize()
+		{
+			return size;
+		}
+
+		/**
+		 * Whether another file of the same size was found, so this one may be a duplicate.
+		 */
+		public boolean mayBeDuplicate()
+		{
+			return sizeShared;
+		}
+	}
+
+	/**
+	 * Lists the regular files below the directory that match the glob, in a stable order. A glob
+	 * without a '/' is matched against the file name, so {@code *.png} finds files in subdirectories
+	 * too; a glob with a '/' is matched against the path relative to the directory. An empty glob
+	 * matches every file.
+	 */
+	public static List<Path> findFiles(Path directory, String glob) throws IOException
+	{
+		if (!Files.isDirectory(directory))
+			throw new IOException("Not a directory: " + directory);
+
+		PathMatcher matcher;
+		if (glob == null || glob.isEmpty()) {
+			matcher = path -> true;
+		} else {
+			PathMatcher globMatcher = directory.getFileSystem().getPathMatcher("glob:" + glob);
+			matcher = glob.contains("/")
+				? path -> globMatcher.matches(directory.relativize(path))
+				: path -> globMatcher.matches(path.getFileName());
+		}
+		try (Stream<Path> paths = Files.walk(directory)) {
+			return paths
+				.filter(Files::isRegularFile)
+				.filter(matcher::matches)
+				.sorted()
+				.collect(Collectors.toList());
+		}
+	}
+
+	/**
+	 * Reads the sizes of the files, without reading their contents. The result keeps the order of the input.
+	 */
+	public static List<ScannedFile> scan(List<Path> files) throws IOException
+	{
+		List<Long> sizes = new ArrayList<>(files.size());
+		Map<Long, Integer> filesPerSize = new HashMap<>();
+		for (Path file : files) {
+			long size = Files.size(file);
+			sizes.add(size);
+			filesPerSize.merge(size, 1, Integer::sum);
+		}
+
+		List<ScannedFile> result = new ArrayList<>(files.size());
+		for (int i = 0; i < files.size(); i++)
+			result.add(new ScannedFile(files.get(i), sizes.get(i), filesPerSize.get(sizes.get(i)) > 1));
+		return result;
+	}
+
+	/**
+	 * Returns the files without those whose content equals that of an earlier file, keeping the order
+	 * of the input. The files that may be duplicates are hashed with at most {@code parallelism} files
+	 * read at a time.
+	 */
+	public static List<ScannedFile> dropDuplicates(List<ScannedFile> files, int parallelism) throws IOException
+	{
+		List<Future<String>> hashes = new ArrayList<>(files.size());
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, parallelism));
+		try {
+			for (ScannedFile file : files)
+				hashes.add(file.mayBeDuplicate() ? pool.submit(() -> hash(file.getPath())) : null);
+
+			Set<String> seen = new HashSet<>();
+			List<ScannedFile> unique = new ArrayList<>(files.size());
+			for (int i = 0; i < files.size(); i++) {
+				if (hashes.get(i) == null || seen.add(hashes.get(i).get()))
+					unique.add(files.get(i));
+			}
+			return unique;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while hashing files", e);
+		} catch (ExecutionException e) {
+			throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Opens the file for storing through its FileChannel.
+	 */
+	public static InputStream open(ScannedFile file) throws IOException
+	{
+		return Channels.newInputStream(FileChannel.open(file.getPath(), StandardOpenOption.READ));
+	}
+
+	private static String hash(Path file) throws IOException
+	{
+		MessageDigest digest = newDigest();
+		ByteBuffer buffer = READ_BUFFERS.get();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			buffer.clear();
+			while (channel.read(buffer) != -1) {
+				buffer.flip();
+				digest.update(buffer);
+				buffer.clear();
+			}
+		}
+		return toHex(digest.digest());
+	}
+
+	private static MessageDigest newDigest()
+	{
+		try {
+			return MessageDigest.getInstance(HASH_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(HASH_ALGORITHM + " is not available", e);
+		}
+	}
+
+	private static String toHex(byte[] bytes)
+	{
+		char[] digits = "0123456789abcdef".toCharArray();
+		char[] result = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			result[i * 2] = digits[(bytes[i] >> 4) & 0xF];
+			result[i * 2 + 1] = digits[bytes[i] & 0xF];
+		}
+		return new String(result);
+	}
+}
@@ -10,13 +10,9 @@
 package image.actions;
 
 import java.awt.Color;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Random;
-import javax.imageio.ImageIO;
+import image.impl.ImageGenerator;
 import com.mendix.core.Core;
 import com.mendix.systemwideinterfaces.core.IContext;
 import com.mendix.systemwideinterfaces.core.IMendixObject;
@@ -48,7 +44,9 @@ public class GenerateConstantImage extends UserAction<java.lang.Void>
 	public java.lang.Void executeAction() throws Exception
 	{
 		// BEGIN USER CODE
-		Core.storeImageDocumentContent(getContext(), ImageEntity, generateImage(Width.intValue(), Height.intValue()), 10, 10);
+		try (InputStream image = generateImage(Width.intValue(), Height.intValue())) {
+			Core.storeImageDocumentContent(getContext(), ImageEntity, image, 10, 10);
+		}
 		return null;
 		// END USER CODE
 	}
@@ -65,21 +63,7 @@ public class GenerateConstantImage extends UserAction<java.lang.Void>
 
 	// BEGIN EXTRA CODE
 	private InputStream generateImage(int width, int height) throws IOException {
-		Random random = new Random();
-		BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-
-        for (int i = 0; i < width; i++) {         
-            for (int j = 0; j < height; j++) {
-                Color color = new Color(255, 0, 0);
-                int rgb = color.getRGB();
-                
-                img.setRGB(i, j, rgb);
-            }
-        }
-        ByteArrayOutputStream stream = new ByteArrayOutputStream();
-        ImageIO.write(img, "jpeg", stream);
-        
-        return new ByteArrayInputStream(stream.toByteArray());
+		return ImageGenerator.streamJpeg(ImageGenerator.createConstantImage(width, height, Color.RED.getRGB()));
 	}
 	// END EXTRA CODE
 }
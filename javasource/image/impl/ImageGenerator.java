@@ -0,0 +1,154 @@
+package image.impl;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import javax.imageio.ImageIO;
+
+/**
+ * Shared image generation used by the GenerateConstantImage actions.
+ *
+ * Pixels are written straight into the raster in row bands on a ForkJoin pool, and the
+ * JPEG encoder output is handed to the caller through a pipe so no full-size copy of the
+ * encoded image is kept in memory.
+ */
+public final class ImageGenerator
+{
+	private static final String FORMAT = "jpeg";
+	private static final int ROWS_PER_TASK = 64;
+	private static final int PIPE_SIZE = 64 * 1024;
+
+	private static final ForkJoinPool FILL_POOL = ForkJoinPool.commonPool();
+	private static final ExecutorService ENCODER_POOL = Executors.newCachedThreadPool(runnable -> {
+		Thread thread = new Thread(runnable, "ImageGenerator-encoder");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private ImageGenerator()
+	{
+	}
+
+	/**
+	 * Creates an RGB image of the given size where every pixel has the given color.
+	 */
+	public static BufferedImage createConstantImage(int width, int height, int rgb)
+	{
+		if (width <= 0 || height <= 0)
+			throw new IllegalArgumentException("Image dimensions must be positive, got " + width + "x" + height);
+
+		BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		int[] pixels = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+		FILL_POOL.invoke(new FillRows(pixels, width, 0, height, rgb & 0xFFFFFF));
+		return img;
+	}
+
+	/**
+	 * Encodes the image as JPEG into the given stream.
+	 */
+	public static void writeJpeg(BufferedImage img, OutputStream out) throws IOException
+	{
+		if (!ImageIO.write(img, FORMAT, out))
+			throw new IOException("No image writer available for format '" + FORMAT + "'");
+	}
+
+	/**
+	 * Returns a stream of the JPEG encoding of the image. The encoder runs on a background thread
+	 * and writes into a bounded pipe, so only {@value #PIPE_SIZE} bytes are buffered at a time.
+	 * Encoder failures are rethrown from the read that reaches the end of the stream.
+	 */
+	public static InputStream streamJpeg(BufferedImage img) throws IOException
+	{
+		PipedInputStream in = new PipedInputStream(PIPE_SIZE);
+		PipedOutputStream out = new PipedOutputStream(in);
+		EncodedImageStream result = new EncodedImageStream(in);
+
+		ENCODER_POOL.execute(() -> {
+			// the failure has to be recorded before the pipe is closed, otherwise the reader may see a clean end of stream
+			try {
+				writeJpeg(img, out);
+			} catch (IOException | RuntimeException e) {
+				result.failure = e;
+			} finally {
+				try {
+					out.close();
+				} catch (IOException e) {
+					if (result.failure == null)
+						result.failure = e;
+				}
+			}
+		});
+		return result;
+	}
+
+	private static final class FillRows extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final int[] pixels;
+		private final int width;
+		private final int fromRow;
+		private final int toRow;
+		private final int rgb;
+
+		FillRows(int[] pixels, int width, int fromRow, int toRow, int rgb)
+		{
+			this.pixels = pixels;
+			this.width = width;
+			this.fromRow = fromRow;
+			this.toRow = toRow;
+			this.rgb = rgb;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (toRow - fromRow <= ROWS_PER_TASK) {
+				Arrays.fill(pixels, fromRow * width, toRow * width, rgb);
+				return;
+			}
+			int middle = (fromRow + toRow) >>> 1;
+			invokeAll(new FillRows(pixels, width, fromRow, middle, rgb),
+				new FillRows(pixels, width, middle, toRow, rgb));
+		}
+	}
+
+	private static final class EncodedImageStream extends FilterInputStream
+	{
+		private volatile Exception failure;
+
+		EncodedImageStream(InputStream in)
+		{
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException
+		{
+			return checkEnd(super.read());
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException
+		{
+			return checkEnd(super.read(b, off, len));
+		}
+
+		private int checkEnd(int result) throws IOException
+		{
+			if (result == -1 && failure != null)
+				throw new IOException("Failed to encode image", failure);
+			return result;
+		}
+	}
+}